@@ -0,0 +1,151 @@
+package com.test.sceneformapp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.ar.sceneform.FrameTime;
+import com.google.ar.sceneform.Node;
+import com.google.ar.sceneform.Scene;
+import com.google.ar.sceneform.math.Quaternion;
+import com.google.ar.sceneform.math.Vector3;
+
+/**
+ * Runs every active animation of the scene from the frame clock.
+ * <p>
+ * Animations live in an {@link AnimationTable} and are advanced together in fixed timesteps, so
+ * their behaviour does not depend on the frame rate or on how often touch events arrive. The
+ * scheduler only registers itself as a {@link Scene.OnUpdateListener} while something is animating.
+ */
+public class AnimationScheduler implements Scene.OnUpdateListener, AnimationTable.Callback<Node> {
+
+    private final Scene scene;
+    private final SessionJournal journal;
+    private final AnimationTable<Node> table = new AnimationTable<>(this);
+    private boolean attached = false;
+    private boolean detachPosted = false;
+    // Scene iterates its listener list while dispatching onUpdate, so removal waits until after
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable detachIfIdle = new Runnable() {
+        @Override
+        public void run() {
+            detachPosted = false;
+            if (!table.isAnimating()) {
+                detach();
+            }
+        }
+    };
+
+    private final Quaternion stepRotation = new Quaternion();
+    private final Vector3 position = new Vector3();
+    private final Vector3 scale = new Vector3();
+
+    public AnimationScheduler(Scene scene) {
+        this(scene, null);
+    }
+
+    /**
+     * @param journal receives the total angle of every spin once it ends, may be null
+     */
+    public AnimationScheduler(Scene scene, SessionJournal journal) {
+        this.scene = scene;
+        this.journal = journal;
+    }
+
+    /**
+     * Keeps a node spinning around the up axis after a pan, slowing down until it stops. Starting
+     * a new spin on the same node replaces the old one.
+     *
+     * @return true if the node is spinning afterwards
+     */
+    public boolean spin(Node node, float degreesPerSecond) {
+        if (table.spin(node, degreesPerSecond)) {
+            attach();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the camera target along z by {@code delta}, clamped to {@code [min, max]}. Repeated
+     * calls during a pinch accumulate into the same target while the camera eases towards it.
+     */
+    public void zoomBy(Node camera, float delta, float min, float max) {
+        if (table.zoomBy(camera, camera.getWorldPosition().z, delta, min, max)) {
+            attach();
+        }
+    }
+
+    /**
+     * Grows a freshly placed node from nothing to its current scale.
+     */
+    public void popIn(Node node) {
+        if (table.popIn(node, node.getLocalScale().x)) {
+            scale.set(0f, 0f, 0f);
+            node.setLocalScale(scale);
+            attach();
+        }
+    }
+
+    /**
+     * Stops a spin, e.g. when the user touches the body again.
+     */
+    public void stopSpin(Node node) {
+        table.cancel(node, AnimationTable.TYPE_SPIN);
+    }
+
+    public boolean isAnimating() {
+        return table.isAnimating();
+    }
+
+    @Override
+    public void onUpdate(FrameTime frameTime) {
+        table.advance(frameTime.getDeltaSeconds());
+        if (!table.isAnimating() && !detachPosted) {
+            detachPosted = true;
+            handler.post(detachIfIdle);
+        }
+    }
+
+    @Override
+    public void onSpinStep(Node node, float degrees) {
+        float halfAngle = (float) Math.toRadians(degrees) * 0.5f;
+        // rotation about Vector3.up()
+        stepRotation.set(0f, (float) Math.sin(halfAngle), 0f, (float) Math.cos(halfAngle));
+        node.setLocalRotation(Quaternion.multiply(node.getLocalRotation(), stepRotation));
+    }
+
+    @Override
+    public void onSpinFinished(Node node, float totalDegrees) {
+        if (journal != null) {
+            journal.record(SessionJournal.EVENT_SPIN, totalDegrees, 0f, 0f);
+        }
+    }
+
+    @Override
+    public void onZoomStep(Node camera, float z) {
+        Vector3 worldPosition = camera.getWorldPosition();
+        position.set(worldPosition.x, worldPosition.y, z);
+        camera.setWorldPosition(position);
+    }
+
+    @Override
+    public void onPopInStep(Node node, float s) {
+        scale.set(s, s, s);
+        node.setLocalScale(scale);
+    }
+
+    private void attach() {
+        if (!attached) {
+            attached = true;
+            table.resetClock();
+            scene.addOnUpdateListener(this);
+        }
+    }
+
+    private void detach() {
+        if (attached) {
+            attached = false;
+            scene.removeOnUpdateListener(this);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.test.sceneformapp;
+
+/**
+ * Fixed size table of running animations, advanced in fixed timesteps.
+ * <p>
+ * This is the frame-rate independent part of {@link AnimationScheduler}: it only does arithmetic
+ * over preallocated arrays and reports each step through a {@link Callback}, so it can be driven
+ * by synthetic frame times in JVM tests.
+ *
+ * @param <T> the thing being animated, compared by identity
+ */
+public class AnimationTable<T> {
+
+    public interface Callback<T> {
+        void onSpinStep(T key, float degrees);
+
+        void onSpinFinished(T key, float totalDegrees);
+
+        void onZoomStep(T key, float z);
+
+        void onPopInStep(T key, float scale);
+    }
+
+    static final int MAX_ANIMATIONS = 32;
+    static final float STEP_SECONDS = 1f / 120f;
+    // after a long stall (e.g. activity paused) skip ahead instead of replaying every step
+    static final int MAX_STEPS_PER_FRAME = 8;
+
+    static final int TYPE_NONE = 0;
+    static final int TYPE_SPIN = 1;
+    static final int TYPE_ZOOM = 2;
+    static final int TYPE_POP_IN = 3;
+
+    // spin velocity in degrees per second, decaying exponentially
+    private static final float SPIN_FRICTION = 4f;
+    static final float SPIN_STOP_VELOCITY = 2f;
+    static final float SPIN_MAX_VELOCITY = 720f;
+    private static final float SPIN_DECAY_PER_STEP = (float) Math.exp(-SPIN_FRICTION * STEP_SECONDS);
+
+    // camera zoom eases towards its target
+    private static final float ZOOM_RATE = 12f;
+    private static final float ZOOM_EASE_PER_STEP = 1f - (float) Math.exp(-ZOOM_RATE * STEP_SECONDS);
+    private static final float ZOOM_STOP_DISTANCE = 0.0005f;
+
+    static final float POP_IN_SECONDS = 0.25f;
+    private static final float POP_IN_OVERSHOOT = 1.7f;
+
+    private final Callback<T> callback;
+    private final int[] types = new int[MAX_ANIMATIONS];
+    private final Object[] keys = new Object[MAX_ANIMATIONS];
+    // meaning depends on the type: spin velocity, zoom position or pop-in time
+    private final float[] values = new float[MAX_ANIMATIONS];
+    // zoom target or pop-in final scale
+    private final float[] targets = new float[MAX_ANIMATIONS];
+    // degrees turned so far by a spin
+    private final float[] totals = new float[MAX_ANIMATIONS];
+    private int activeCount = 0;
+    private float accumulator = 0f;
+
+    public AnimationTable(Callback<T> callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Starts or replaces the spin of {@code key}. Velocities below the stop threshold end it.
+     *
+     * @return true if the key is spinning afterwards
+     */
+    public boolean spin(T key, float degreesPerSecond) {
+        float velocity = Math.max(-SPIN_MAX_VELOCITY, Math.min(SPIN_MAX_VELOCITY, degreesPerSecond));
+        if (Math.abs(velocity) < SPIN_STOP_VELOCITY) {
+            cancel(key, TYPE_SPIN);
+            return false;
+        }
+        int slot = find(key, TYPE_SPIN);
+        if (slot < 0) {
+            slot = claim(key, TYPE_SPIN);
+            if (slot < 0) {
+                return false;
+            }
+            totals[slot] = 0f;
+        }
+        values[slot] = velocity;
+        return true;
+    }
+
+    /**
+     * Moves the zoom target of {@code key} by {@code delta}, clamped to {@code [min, max]}. A new
+     * zoom starts easing from {@code currentZ}.
+     *
+     * @return true if the key is zooming afterwards
+     */
+    public boolean zoomBy(T key, float currentZ, float delta, float min, float max) {
+        int slot = find(key, TYPE_ZOOM);
+        if (slot < 0) {
+            slot = claim(key, TYPE_ZOOM);
+            if (slot < 0) {
+                return false;
+            }
+            values[slot] = currentZ;
+            targets[slot] = currentZ;
+        }
+        targets[slot] = Math.max(min, Math.min(max, targets[slot] + delta));
+        return true;
+    }
+
+    /**
+     * Grows {@code key} from nothing to {@code finalScale}.
+     *
+     * @return true if the pop-in was started
+     */
+    public boolean popIn(T key, float finalScale) {
+        int slot = find(key, TYPE_POP_IN);
+        if (slot < 0) {
+            slot = claim(key, TYPE_POP_IN);
+            if (slot < 0) {
+                return false;
+            }
+        }
+        values[slot] = 0f;
+        targets[slot] = finalScale;
+        return true;
+    }
+
+    public void cancel(T key, int type) {
+        int slot = find(key, type);
+        if (slot >= 0) {
+            finish(slot);
+        }
+    }
+
+    public boolean isAnimating() {
+        return activeCount > 0;
+    }
+
+    /**
+     * Forgets time carried over from earlier frames, used when the clock restarts after idling.
+     */
+    public void resetClock() {
+        accumulator = 0f;
+    }
+
+    /**
+     * Runs as many fixed steps as fit into the elapsed frame time.
+     *
+     * @return number of steps run
+     */
+    public int advance(float deltaSeconds) {
+        accumulator += deltaSeconds;
+        int steps = 0;
+        while (accumulator >= STEP_SECONDS && steps < MAX_STEPS_PER_FRAME) {
+            step();
+            accumulator -= STEP_SECONDS;
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_FRAME) {
+            accumulator = 0f;
+        }
+        return steps;
+    }
+
+    private void step() {
+        for (int i = 0; i < MAX_ANIMATIONS; i++) {
+            switch (types[i]) {
+                case TYPE_SPIN:
+                    stepSpin(i);
+                    break;
+                case TYPE_ZOOM:
+                    stepZoom(i);
+                    break;
+                case TYPE_POP_IN:
+                    stepPopIn(i);
+                    break;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T key(int slot) {
+        return (T) keys[slot];
+    }
+
+    private void stepSpin(int slot) {
+        float degrees = values[slot] * STEP_SECONDS;
+        totals[slot] += degrees;
+        callback.onSpinStep(key(slot), degrees);
+        values[slot] *= SPIN_DECAY_PER_STEP;
+        if (Math.abs(values[slot]) < SPIN_STOP_VELOCITY) {
+            finish(slot);
+        }
+    }
+
+    private void stepZoom(int slot) {
+        float z = values[slot] + (targets[slot] - values[slot]) * ZOOM_EASE_PER_STEP;
+        if (Math.abs(targets[slot] - z) < ZOOM_STOP_DISTANCE) {
+            z = targets[slot];
+        }
+        values[slot] = z;
+        callback.onZoomStep(key(slot), z);
+        if (z == targets[slot]) {
+            finish(slot);
+        }
+    }
+
+    private void stepPopIn(int slot) {
+        values[slot] += STEP_SECONDS;
+        float t = Math.min(1f, values[slot] / POP_IN_SECONDS);
+        // ease out with a slight overshoot so the marker visibly lands
+        float u = t - 1f;
+        float scale = targets[slot] * (1f + (POP_IN_OVERSHOOT + 1f) * u * u * u + POP_IN_OVERSHOOT * u * u);
+        callback.onPopInStep(key(slot), scale);
+        if (t >= 1f) {
+            finish(slot);
+        }
+    }
+
+    private int find(T key, int type) {
+        for (int i = 0; i < MAX_ANIMATIONS; i++) {
+            if (types[i] == type && keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Claims a free slot, or returns -1 when the table is full and the animation is skipped.
+     */
+    private int claim(T key, int type) {
+        for (int i = 0; i < MAX_ANIMATIONS; i++) {
+            if (types[i] == TYPE_NONE) {
+                types[i] = type;
+                keys[i] = key;
+                activeCount++;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void finish(int slot) {
+        T key = key(slot);
+        int type = types[slot];
+        types[slot] = TYPE_NONE;
+        keys[slot] = null;
+        activeCount--;
+        if (type == TYPE_SPIN) {
+            callback.onSpinFinished(key, totals[slot]);
+        }
+    }
+}
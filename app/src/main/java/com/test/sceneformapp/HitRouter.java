@@ -0,0 +1,137 @@
+package com.test.sceneformapp;
+
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import com.google.ar.sceneform.HitTestResult;
+import com.google.ar.sceneform.Node;
+import com.google.ar.sceneform.Scene;
+import com.google.ar.sceneform.ux.BaseTransformableNode;
+
+/**
+ * Routes scene touches to the app with at most two ray casts per gesture.
+ * <p>
+ * Installed as the {@link View.OnTouchListener} of the {@code SceneView}, it consumes the events
+ * before Sceneform hit tests them. A full {@link Scene#hitTest(MotionEvent)} is only run when a
+ * gesture starts and when it ends; every event in between reuses the result from the start, so
+ * its target node stays the same for the whole gesture.
+ * <p>
+ * Because the scene never sees these events, Sceneform's node tap dispatch does not run either.
+ * The only tap listener in use is the tap-to-select of sceneform-ux transformable nodes, so that
+ * is done here for taps on the node the gesture started on.
+ */
+public class HitRouter implements View.OnTouchListener {
+
+    public interface Listener {
+        void onTouch(HitTestResult hitTestResult, MotionEvent motionEvent);
+    }
+
+    private static final String TAG = "HitRouter";
+
+    private final Scene scene;
+    private final Listener listener;
+    private HitTestResult gestureHit;
+    private float downX;
+    private float downY;
+    private boolean movedBeyondSlop;
+
+    private int gestureRayCasts = 0;
+    private int gestureRayCastsAvoided = 0;
+    private long totalRayCasts = 0;
+    private long totalRayCastsAvoided = 0;
+
+    public HitRouter(Scene scene, Listener listener) {
+        this.scene = scene;
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean onTouch(View view, MotionEvent motionEvent) {
+        HitTestResult hitTestResult;
+        switch (motionEvent.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                gestureRayCasts = 0;
+                gestureRayCastsAvoided = 0;
+                downX = motionEvent.getX();
+                downY = motionEvent.getY();
+                movedBeyondSlop = false;
+                gestureHit = hitTest(motionEvent);
+                hitTestResult = gestureHit;
+                break;
+            case MotionEvent.ACTION_UP:
+                // the marker is placed where the finger lifts, so this one has to be fresh
+                hitTestResult = hitTest(motionEvent);
+                if (isTap(motionEvent)) {
+                    selectTransformable(gestureHit);
+                }
+                break;
+            default:
+                if (!movedBeyondSlop) {
+                    int slop = ViewConfiguration.get(view.getContext()).getScaledTouchSlop();
+                    movedBeyondSlop = Math.abs(motionEvent.getX() - downX) > slop
+                            || Math.abs(motionEvent.getY() - downY) > slop;
+                }
+                if (gestureHit == null) {
+                    gestureHit = hitTest(motionEvent);
+                } else {
+                    gestureRayCastsAvoided++;
+                    totalRayCastsAvoided++;
+                }
+                hitTestResult = gestureHit;
+        }
+
+        listener.onTouch(hitTestResult, motionEvent);
+
+        int action = motionEvent.getActionMasked();
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            Log.d(TAG, "Gesture ray casts: " + gestureRayCasts + ", avoided: " + gestureRayCastsAvoided);
+            gestureHit = null;
+        }
+        return true;
+    }
+
+    private boolean isTap(MotionEvent motionEvent) {
+        return !movedBeyondSlop
+                && motionEvent.getEventTime() - motionEvent.getDownTime() < ViewConfiguration.getLongPressTimeout();
+    }
+
+    /**
+     * Selects the transformable node that was hit, or its nearest transformable ancestor, the way
+     * the scene's tap dispatch would have.
+     */
+    private void selectTransformable(HitTestResult hitTestResult) {
+        if (hitTestResult == null) {
+            return;
+        }
+        for (Node node = hitTestResult.getNode(); node != null; node = node.getParent()) {
+            if (node instanceof BaseTransformableNode) {
+                ((BaseTransformableNode) node).select();
+                return;
+            }
+        }
+    }
+
+    private HitTestResult hitTest(MotionEvent motionEvent) {
+        gestureRayCasts++;
+        totalRayCasts++;
+        return scene.hitTest(motionEvent);
+    }
+
+    public int getGestureRayCasts() {
+        return gestureRayCasts;
+    }
+
+    public int getGestureRayCastsAvoided() {
+        return gestureRayCastsAvoided;
+    }
+
+    public long getTotalRayCasts() {
+        return totalRayCasts;
+    }
+
+    public long getTotalRayCastsAvoided() {
+        return totalRayCastsAvoided;
+    }
+}
@@ -1,13 +1,14 @@
 package com.test.sceneformapp;
 
 
+import android.hardware.display.DisplayManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.RequiresApi;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
-import android.view.GestureDetector;
+import android.view.Display;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.Toast;
@@ -36,6 +37,8 @@ import com.google.ar.sceneform.ux.PinchGestureRecognizer;
 import com.google.ar.sceneform.ux.TransformableNode;
 import com.google.ar.sceneform.ux.TransformationSystem;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.function.Consumer;
 
 public class MainActivity extends AppCompatActivity {
@@ -53,6 +56,24 @@ public class MainActivity extends AppCompatActivity {
     private TouchController touchHandler;
     private ModelRenderable redSphereRenderable;
     private TransformableNode boundsNode;
+    private SessionJournal journal;
+    private AnimationScheduler animationScheduler;
+    private DisplayManager displayManager;
+    private final DisplayManager.DisplayListener displayListener = new DisplayManager.DisplayListener() {
+        @Override
+        public void onDisplayAdded(int displayId) {
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            // panels with adaptive refresh switch rates while the app runs
+            updateRefreshRate();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -69,26 +90,18 @@ public class MainActivity extends AppCompatActivity {
         finalNode.setName("human");
         finalNode.getScaleController().setEnabled(true);
         finalNode.getRotationController().setEnabled(true);
-        touchHandler = new TouchController(scene);
-        sceneView.setOnTouchListener(new GestureDetector.OnDoubleTapListener(this) {
-            @Override
-            public boolean onSingleTapConfirmed(MotionEvent motionEvent) {
-                return false;
-            }
-
-            @Override
-            public boolean onDoubleTap(MotionEvent motionEvent) {
-                return false;
-            }
-
-            @Override
-            public boolean onDoubleTapEvent(MotionEvent motionEvent) {
-                return false;
-            }
-        });
-        scene.addOnPeekTouchListener(new Scene.OnPeekTouchListener() {
+        journal = new SessionJournal(new File(getFilesDir(), "session.journal"));
+        try {
+            journal.start();
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to open session journal", e);
+        }
+        animationScheduler = new AnimationScheduler(scene, journal);
+        touchHandler = new TouchController(scene, journal, animationScheduler);
+        // hit tests are run by the router once per gesture instead of by the scene on every event
+        sceneView.setOnTouchListener(new HitRouter(scene, new HitRouter.Listener() {
             @Override
-            public void onPeekTouch(HitTestResult hitTestResult, MotionEvent motionEvent) {
+            public void onTouch(HitTestResult hitTestResult, MotionEvent motionEvent) {
                 try {
                     touchHandler.onTouchEvent(motionEvent, boundsNode, hitTestResult, getApplicationContext());
                     transformationSystem.onTouch(hitTestResult, motionEvent);
@@ -98,7 +111,7 @@ public class MainActivity extends AppCompatActivity {
                     ex.printStackTrace();
                 }
             }
-        });
+        }));
 
         renderObject(Uri.parse("human.sfb"));
 
@@ -168,11 +181,36 @@ public class MainActivity extends AppCompatActivity {
         } catch (CameraNotAvailableException e) {
             e.printStackTrace();
         }
+        displayManager = (DisplayManager) getSystemService(DISPLAY_SERVICE);
+        displayManager.registerDisplayListener(displayListener, null);
+        updateRefreshRate();
+    }
+
+    private void updateRefreshRate() {
+        Display display = getWindowManager().getDefaultDisplay();
+        touchHandler.setRefreshRate(display.getRefreshRate());
     }
 
     @Override
     protected void onPause() {
         super.onPause();
         sceneView.pause();
+        displayManager.unregisterDisplayListener(displayListener);
+        try {
+            // onDestroy is not guaranteed, so get the journal onto disk while we still can
+            journal.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 }
@@ -0,0 +1,201 @@
+package com.test.sceneformapp;
+
+/**
+ * Extrapolates a one dimensional rotation to the expected presentation time of the next frame.
+ * <p>
+ * A least-squares position/velocity/acceleration fit is made over the most recent samples of the
+ * gesture. The lead added on top of the last real sample is clamped to {@code maxLead}, and is
+ * scaled down while recent predictions have been overshooting the samples that actually arrived.
+ * Everything here is plain Java so it can be replayed against recorded traces in JVM tests.
+ */
+public class RotationPredictor {
+
+    private static final int MAX_SAMPLES = 8;
+    private static final float DEFAULT_WINDOW_MS = 64f;
+    private static final float DEFAULT_MAX_LEAD = 15f;
+    // acceleration is noisy on touch input, only part of it is trusted
+    private static final float ACCELERATION_WEIGHT = 0.5f;
+    private static final float ERROR_SMOOTHING = 0.3f;
+    private static final float MIN_GAIN = 0.25f;
+    private static final float STALE_MS = 40f;
+    // events delivered later than this many frames are not chased any further
+    private static final float MAX_EVENT_AGE_FRAMES = 2f;
+
+    private final float windowMs;
+    private final float maxLead;
+
+    private final float[] times = new float[MAX_SAMPLES];
+    private final float[] values = new float[MAX_SAMPLES];
+    private int start = 0;
+    private int count = 0;
+
+    private boolean hasPrediction = false;
+    private float predictedFromTime;
+    private float predictedFromValue;
+    private float predictedTime;
+    private float predictedValue;
+    private float predictedLead;
+    private float overshoot = 0f;
+
+    // result of the last fit, per millisecond
+    private double velocity;
+    private double acceleration;
+
+    public RotationPredictor() {
+        this(DEFAULT_WINDOW_MS, DEFAULT_MAX_LEAD);
+    }
+
+    /**
+     * @param windowMs samples older than this, relative to the newest one, are not used in the fit
+     * @param maxLead  largest distance the prediction may run ahead of the last real sample
+     */
+    public RotationPredictor(float windowMs, float maxLead) {
+        this.windowMs = windowMs;
+        this.maxLead = maxLead;
+    }
+
+    public void reset() {
+        start = 0;
+        count = 0;
+        hasPrediction = false;
+        overshoot = 0f;
+    }
+
+    /**
+     * Adds a real sample. Samples must arrive in increasing time order.
+     */
+    public void addSample(float timeMs, float value) {
+        if (count > 0 && timeMs <= times[(start + count - 1) % MAX_SAMPLES]) {
+            // same timestamp as the previous sample, keep the newest value
+            values[(start + count - 1) % MAX_SAMPLES] = value;
+            return;
+        }
+        if (hasPrediction) {
+            // samples usually arrive before the predicted time, so compare against the part of
+            // the lead the last prediction expected to have covered by now
+            float progress = Math.min(1f, (timeMs - predictedFromTime) / (predictedTime - predictedFromTime));
+            float expectedLead = predictedLead * progress;
+            if (Math.abs(expectedLead) > 1e-6f) {
+                float actualLead = value - predictedFromValue;
+                float error = (expectedLead - actualLead) * Math.signum(expectedLead) / Math.abs(expectedLead);
+                float ratio = Math.max(0f, Math.min(1f, error));
+                overshoot += (ratio - overshoot) * ERROR_SMOOTHING;
+            }
+            hasPrediction = false;
+        }
+        if (count == MAX_SAMPLES) {
+            start = (start + 1) % MAX_SAMPLES;
+            count--;
+        }
+        int index = (start + count) % MAX_SAMPLES;
+        times[index] = timeMs;
+        values[index] = value;
+        count++;
+        while (count > 2 && timeMs - times[start] > windowMs) {
+            start = (start + 1) % MAX_SAMPLES;
+            count--;
+        }
+    }
+
+    /**
+     * Returns the value expected at {@code targetTimeMs}. With fewer than two samples this is the
+     * last sample itself.
+     */
+    public float predict(float targetTimeMs) {
+        if (count == 0) {
+            return 0f;
+        }
+        int last = (start + count - 1) % MAX_SAMPLES;
+        float lastTime = times[last];
+        float lastValue = values[last];
+        if (count < 2 || targetTimeMs <= lastTime || !fit(lastTime, lastValue)) {
+            return lastValue;
+        }
+
+        double dt = targetTimeMs - lastTime;
+        double lead = velocity * dt + 0.5 * ACCELERATION_WEIGHT * acceleration * dt * dt;
+        // only lead in the direction the samples in the window have actually moved, a fit that
+        // curls back after the finger stops would otherwise predict a reversal that never happens
+        float direction = lastValue - values[start];
+        if (lead * direction <= 0) {
+            lead = 0;
+        }
+        lead *= Math.max(MIN_GAIN, 1f - overshoot);
+        lead = Math.max(-maxLead, Math.min(maxLead, lead));
+
+        predictedFromTime = lastTime;
+        predictedFromValue = lastValue;
+        predictedTime = targetTimeMs;
+        predictedLead = (float) lead;
+        predictedValue = lastValue + predictedLead;
+        hasPrediction = true;
+        return predictedValue;
+    }
+
+    /**
+     * Returns how far past an event's timestamp the next frame will be presented: the time the
+     * event already spent reaching the app, plus one refresh period until the frame being
+     * prepared now reaches the display.
+     *
+     * @param framePeriodMs refresh period of the display
+     * @param eventAgeMs    time between the event's timestamp and now
+     */
+    public static float presentationHorizon(float framePeriodMs, float eventAgeMs) {
+        float age = Math.max(0f, Math.min(eventAgeMs, MAX_EVENT_AGE_FRAMES * framePeriodMs));
+        return age + framePeriodMs;
+    }
+
+    /**
+     * Returns the fitted velocity, in value units per millisecond, for a gesture ending at
+     * {@code timeMs}. If no sample arrived recently the finger is considered to have stopped.
+     */
+    public float estimateVelocity(float timeMs) {
+        if (count < 2) {
+            return 0f;
+        }
+        int last = (start + count - 1) % MAX_SAMPLES;
+        float lastValue = values[last];
+        if (timeMs - times[last] > STALE_MS || !fit(times[last], lastValue)) {
+            return 0f;
+        }
+        if (velocity * (lastValue - values[start]) <= 0) {
+            return 0f;
+        }
+        return (float) velocity;
+    }
+
+    private boolean fit(float lastTime, float lastValue) {
+        // fit around the newest sample so t = 0 is the last real observation
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double y0 = 0, y1 = 0, y2 = 0;
+        for (int i = 0; i < count; i++) {
+            int index = (start + i) % MAX_SAMPLES;
+            double t = times[index] - lastTime;
+            double y = values[index] - lastValue;
+            double t2 = t * t;
+            s0 += 1;
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            y0 += y;
+            y1 += y * t;
+            y2 += y * t2;
+        }
+
+        acceleration = 0;
+        double det3 = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+        if (count >= 3 && Math.abs(det3) > 1e-9) {
+            velocity = (s0 * (y1 * s4 - s3 * y2) - y0 * (s1 * s4 - s3 * s2) + s2 * (s1 * y2 - y1 * s2)) / det3;
+            // y = a + v t + c t^2, so the acceleration is twice the quadratic coefficient
+            acceleration = 2 * (s0 * (s2 * y2 - y1 * s3) - s1 * (s1 * y2 - y1 * s2) + y0 * (s1 * s3 - s2 * s2)) / det3;
+        } else {
+            double det2 = s0 * s2 - s1 * s1;
+            if (Math.abs(det2) < 1e-9) {
+                return false;
+            }
+            velocity = (s0 * y1 - s1 * y0) / det2;
+        }
+        return true;
+    }
+}
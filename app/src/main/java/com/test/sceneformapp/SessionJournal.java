@@ -0,0 +1,426 @@
+package com.test.sceneformapp;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only audit journal of gestures and marker placements.
+ * <p>
+ * Events are written into a preallocated direct ring buffer by the touch thread without
+ * allocating, and a background writer drains them in batches into deflate-compressed blocks
+ * guarded by a CRC32. If the writer falls behind the ring, new events are dropped and counted
+ * instead of blocking the touch path.
+ */
+public class SessionJournal implements Closeable {
+
+    public static final int EVENT_GESTURE_START = 1;
+    public static final int EVENT_GESTURE_END = 2;
+    public static final int EVENT_ROTATION_DELTA = 3;
+    public static final int EVENT_MARKER_ADD = 4;
+    // inertial rotation after a pan, recorded once with the total angle when it ends
+    public static final int EVENT_SPIN = 5;
+
+    // time (8) + type (4) + three float values (12)
+    static final int RECORD_SIZE = 24;
+    static final int BLOCK_MAGIC = 0x534A4231; // "SJB1"
+    private static final int BLOCK_HEADER_SIZE = 16;
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_BATCH = 256;
+    // upper bound on a block so a corrupt header cannot make the reader allocate arbitrary sizes
+    static final int MAX_BLOCK_RECORDS = 4096;
+    private static final int MAX_BLOCK_LENGTH = MAX_BLOCK_RECORDS * RECORD_SIZE;
+    private static final int MAX_COMPRESSED_LENGTH = maxCompressedLength(MAX_BLOCK_LENGTH);
+    private static final long IDLE_PARK_NANOS = 20_000_000L;
+
+    private final File file;
+    private final ByteBuffer ring;
+    private final int capacity;
+    private final int mask;
+    private final int batchRecords;
+
+    // head is written only by the producer, tail only by the writer thread
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private final byte[] batch;
+    // header followed by the compressed records, so a block goes to the file in one write
+    private final byte[] block;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    // serialises draining between the writer thread and flush(), and guards release of the deflater
+    private final Object drainLock = new Object();
+
+    private FileOutputStream out;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean closed;
+    private boolean released;
+
+    public SessionJournal(File file) {
+        this(file, DEFAULT_CAPACITY, DEFAULT_BATCH);
+    }
+
+    /**
+     * @param capacity number of records held by the ring, must be a power of two
+     * @param batchRecords maximum number of records compressed into a single block
+     */
+    public SessionJournal(File file, int capacity, int batchRecords) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        if (batchRecords <= 0 || batchRecords > capacity || batchRecords > MAX_BLOCK_RECORDS) {
+            throw new IllegalArgumentException("batchRecords out of range: " + batchRecords);
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.batchRecords = batchRecords;
+        this.ring = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        this.batch = new byte[batchRecords * RECORD_SIZE];
+        this.block = new byte[BLOCK_HEADER_SIZE + maxCompressedLength(batch.length)];
+    }
+
+    private static int maxCompressedLength(int length) {
+        // deflate can expand incompressible input slightly
+        return length + length / 8 + 64;
+    }
+
+    public synchronized void start() throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        if (running) {
+            return;
+        }
+        long validLength = recoverableLength(file);
+        out = new FileOutputStream(file, true);
+        if (out.getChannel().size() > validLength) {
+            // a block left half written by a killed process would hide every later session
+            out.getChannel().truncate(validLength);
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "SessionJournal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the length of the leading run of intact blocks in {@code file}.
+     */
+    static long recoverableLength(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        Visitor ignore = (timeMillis, type, a, b, c) -> {
+        };
+        try (Reader reader = new Reader(file)) {
+            try {
+                while (reader.readBlock(ignore) >= 0) {
+                    // keep going until the end or the first damaged block
+                }
+            } catch (IOException e) {
+                // the file is cut back to the last block that read cleanly
+            }
+            return reader.getValidLength();
+        }
+    }
+
+    /**
+     * Records an event. Must only be called from a single thread (the touch thread).
+     *
+     * @return false if the ring was full or the journal closed, and the event was dropped
+     */
+    public boolean record(int type, float a, float b, float c) {
+        long h = head.get();
+        if (closed || h - tail.get() >= capacity) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int offset = (int) (h & mask) * RECORD_SIZE;
+        ring.putLong(offset, System.currentTimeMillis());
+        ring.putInt(offset + 8, type);
+        ring.putFloat(offset + 12, a);
+        ring.putFloat(offset + 16, b);
+        ring.putFloat(offset + 20, c);
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    public boolean record(int type) {
+        return record(type, 0f, 0f, 0f);
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    private void drainLoop() {
+        try {
+            while (running) {
+                if (drainOnce() == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+            while (drainOnce() > 0) {
+                // flush whatever was recorded before close()
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            running = false;
+        } finally {
+            if (closed) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Writes everything recorded so far to the file and syncs it. Called when the activity pauses,
+     * since the process can be killed afterwards without {@link #close()} ever running.
+     */
+    public void flush() throws IOException {
+        synchronized (drainLock) {
+            if (out == null) {
+                return;
+            }
+            while (drainOnce() > 0) {
+                // drain on the calling thread rather than waiting for the writer to wake up
+            }
+            out.getFD().sync();
+        }
+    }
+
+    /**
+     * Copies up to one batch out of the ring and appends it to the file as a single block.
+     *
+     * @return number of records written
+     */
+    int drainOnce() throws IOException {
+        synchronized (drainLock) {
+            if (out == null) {
+                return 0;
+            }
+            return drainBlock();
+        }
+    }
+
+    private int drainBlock() throws IOException {
+        long t = tail.get();
+        int count = (int) Math.min(head.get() - t, batchRecords);
+        if (count == 0) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int from = (int) ((t + i) & mask) * RECORD_SIZE;
+            int to = i * RECORD_SIZE;
+            putLong(batch, to, ring.getLong(from));
+            putInt(batch, to + 8, ring.getInt(from + 8));
+            putInt(batch, to + 12, Float.floatToRawIntBits(ring.getFloat(from + 12)));
+            putInt(batch, to + 16, Float.floatToRawIntBits(ring.getFloat(from + 16)));
+            putInt(batch, to + 20, Float.floatToRawIntBits(ring.getFloat(from + 20)));
+        }
+        tail.lazySet(t + count);
+
+        int length = count * RECORD_SIZE;
+        deflater.reset();
+        deflater.setInput(batch, 0, length);
+        deflater.finish();
+        int compressedLength = deflater.deflate(block, BLOCK_HEADER_SIZE, block.length - BLOCK_HEADER_SIZE);
+
+        putInt(block, 0, BLOCK_MAGIC);
+        putInt(block, 4, length);
+        putInt(block, 8, compressedLength);
+        // the checksum covers the lengths as well as the records
+        crc.reset();
+        crc.update(block, 4, 8);
+        crc.update(batch, 0, length);
+        putInt(block, 12, (int) crc.getValue());
+        out.write(block, 0, BLOCK_HEADER_SIZE + compressedLength);
+        written.addAndGet(count);
+        return count;
+    }
+
+    private static void putLong(byte[] b, int off, long v) {
+        putInt(b, off, (int) (v >>> 32));
+        putInt(b, off + 4, (int) v);
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    /**
+     * Stops the writer after it has flushed all recorded events and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (writer.isAlive()) {
+                // still draining, the writer releases the deflater and the file when it exits
+                return;
+            }
+            writer = null;
+        }
+        release();
+    }
+
+    private void release() {
+        synchronized (drainLock) {
+            if (released) {
+                return;
+            }
+            released = true;
+            deflater.end();
+            if (out != null) {
+                try {
+                    out.getFD().sync();
+                    out.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                out = null;
+            }
+        }
+    }
+
+    public interface Visitor {
+        void onEvent(long timeMillis, int type, float a, float b, float c);
+    }
+
+    /**
+     * Sequentially reads a journal file block by block.
+     */
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final Inflater inflater = new Inflater();
+        private final CRC32 crc = new CRC32();
+        private final byte[] lengths = new byte[8];
+        private byte[] compressed = new byte[0];
+        private byte[] block = new byte[0];
+        private long validLength = 0;
+
+        public Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        }
+
+        /**
+         * Visits every event in the file in the order it was recorded.
+         *
+         * @return number of events visited
+         * @throws IOException if a block is malformed or fails its checksum
+         */
+        public long readAll(Visitor visitor) throws IOException {
+            long events = 0;
+            int count;
+            while ((count = readBlock(visitor)) >= 0) {
+                events += count;
+            }
+            return events;
+        }
+
+        /**
+         * @return number of events in the block, or -1 at the end of the file
+         */
+        public int readBlock(Visitor visitor) throws IOException {
+            int magic;
+            try {
+                magic = in.readInt();
+            } catch (EOFException e) {
+                return -1;
+            }
+            if (magic != BLOCK_MAGIC) {
+                throw new IOException("Bad journal block magic: " + Integer.toHexString(magic));
+            }
+            int length = in.readInt();
+            int compressedLength = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || length > MAX_BLOCK_LENGTH || length % RECORD_SIZE != 0
+                    || compressedLength < 0 || compressedLength > MAX_COMPRESSED_LENGTH) {
+                throw new IOException("Bad journal block header");
+            }
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            if (block.length < length) {
+                block = new byte[length];
+            }
+            in.readFully(compressed, 0, compressedLength);
+
+            inflater.reset();
+            inflater.setInput(compressed, 0, compressedLength);
+            try {
+                if (inflater.inflate(block, 0, length) != length) {
+                    throw new IOException("Truncated journal block");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt journal block", e);
+            }
+            putInt(lengths, 0, length);
+            putInt(lengths, 4, compressedLength);
+            crc.reset();
+            crc.update(lengths, 0, 8);
+            crc.update(block, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Journal block checksum mismatch");
+            }
+
+            ByteBuffer records = ByteBuffer.wrap(block, 0, length).order(ByteOrder.BIG_ENDIAN);
+            int count = length / RECORD_SIZE;
+            for (int i = 0; i < count; i++) {
+                int off = i * RECORD_SIZE;
+                visitor.onEvent(records.getLong(off), records.getInt(off + 8),
+                        records.getFloat(off + 12), records.getFloat(off + 16), records.getFloat(off + 20));
+            }
+            validLength += BLOCK_HEADER_SIZE + compressedLength;
+            return count;
+        }
+
+        /**
+         * Returns the number of bytes taken by the blocks read successfully so far.
+         */
+        long getValidLength() {
+            return validLength;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+    }
+}
@@ -32,6 +32,11 @@ public class TouchController {
     private static final int TOUCH_STATUS_ROTATING_CAMERA = 4;
     private static final int TOUCH_STATUS_MOVING_WORLD = 5;
     private static final int TOUCH_STATUS_SINGLE_TAP = 2;
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+    private static final float ZOOM_PER_PIXEL = 0.004f;
+    private static final float CAMERA_MIN_Z = -0.499f;
+    // the camera starts at z = 1.5, which has to stay reachable
+    private static final float CAMERA_MAX_Z = 1.5f;
 
     private final Scene scene;
     private int pointerCount = 0;
@@ -75,9 +80,34 @@ public class TouchController {
     private Integer touchCounter = 0;
     private ModelRenderable redSphereRenderable;
     private Context mContext;
+    private final SessionJournal journal;
+    private final RotationPredictor rotationPredictor = new RotationPredictor();
+    // rotation of the current gesture as sampled from the finger, and as actually applied to the node
+    private float sampledRotation = 0;
+    private float appliedRotation = 0;
+    private long gestureStartTime;
+    private float framePeriodMs = 1000f / DEFAULT_REFRESH_RATE;
+    private boolean panning = false;
+    private final AnimationScheduler animationScheduler;
 
     public TouchController(Scene scene) {
+        this(scene, null, new AnimationScheduler(scene));
+    }
+
+    public TouchController(Scene scene, SessionJournal journal, AnimationScheduler animationScheduler) {
         this.scene = scene;
+        this.journal = journal;
+        this.animationScheduler = animationScheduler;
+    }
+
+    /**
+     * Sets the refresh rate of the display the scene is shown on, used to predict when the next
+     * frame is presented.
+     */
+    public synchronized void setRefreshRate(float refreshRate) {
+        if (refreshRate > 0) {
+            framePeriodMs = 1000f / refreshRate;
+        }
     }
 
     public synchronized boolean onTouchEvent(MotionEvent motionEvent, TransformableNode finalNode, HitTestResult hitTestResult, Context applicationContext) {
@@ -92,6 +122,21 @@ public class TouchController {
             case MotionEvent.ACTION_HOVER_EXIT:
             case MotionEvent.ACTION_OUTSIDE:
                 touchCounter = 0;
+                if (journal != null) {
+                    journal.record(SessionJournal.EVENT_GESTURE_END, motionEvent.getX(), motionEvent.getY(), 0f);
+                }
+                boolean spinning = false;
+                if (finalNode != null && panning) {
+                    float velocity = rotationPredictor.estimateVelocity(motionEvent.getEventTime() - gestureStartTime);
+                    spinning = animationScheduler.spin(finalNode, velocity * 1000f);
+                }
+                if (spinning) {
+                    // the spin carries on from where the prediction already is instead of jumping back
+                    sampledRotation = appliedRotation;
+                } else {
+                    settleRotation(finalNode);
+                }
+                panning = false;
                 // this to handle "1 simple touch"
                 if (lastActionTime > SystemClock.uptimeMillis() - 250) {
                     simpleTouch = true;
@@ -108,6 +153,21 @@ public class TouchController {
             case MotionEvent.ACTION_POINTER_DOWN:
             case MotionEvent.ACTION_HOVER_ENTER:
                 Log.d(TAG, "Gesture changed...");
+                // a pan turning into a pinch must not keep the lead it had already applied
+                settleRotation(finalNode);
+                rotationPredictor.reset();
+                // predictor times are relative to the gesture so they stay precise as floats
+                gestureStartTime = motionEvent.getEventTime();
+                sampledRotation = 0;
+                appliedRotation = 0;
+                panning = false;
+                if (finalNode != null && isOnNode(hitTestResult, finalNode)) {
+                    // touching the body catches it, touches elsewhere on the view let it coast
+                    animationScheduler.stopSpin(finalNode);
+                }
+                if (journal != null) {
+                    journal.record(SessionJournal.EVENT_GESTURE_START, motionEvent.getX(), motionEvent.getY(), 0f);
+                }
                 gestureChanged = true;
                 touchDelay = 0;
                 lastActionTime = SystemClock.uptimeMillis();
@@ -227,18 +287,20 @@ public class TouchController {
                     float anglePan = (float) Math.sqrt((Math.pow(dx1, 2) + Math.pow(dy1, 2)) * (Math.PI) / 180.0);
                     Log.d("Panangle", String.valueOf(anglePan));
                     if (dx1 > 0.0 && dx1 > dy1 - dx1) {
-                        Quaternion rotationDelta = new Quaternion(Vector3.up(), 3 * anglePan);
-                        Quaternion localrotation = finalNode.getLocalRotation();
-                        localrotation = Quaternion.multiply(localrotation, rotationDelta);
-                        //  Log.e("rotation right : ", dx1 + " " + dy1);
-                        finalNode.setLocalRotation(localrotation);
+                        // rotation right
+                        sampledRotation += 3 * anglePan;
                     } else if (dx1 < 0.0 && dx1 < dy1 - dx1) {
-                        Quaternion rotationDelta = new Quaternion(Vector3.down(), 3 * anglePan);
-                        Quaternion localrotation = finalNode.getLocalRotation();
-                        localrotation = Quaternion.multiply(localrotation, rotationDelta);
-                        //Log.e("rotation left : ", dx1 + " " + dy1);
-                        finalNode.setLocalRotation(localrotation);
+                        // rotation left
+                        sampledRotation -= 3 * anglePan;
                     }
+                    // show where the finger will be when the next frame is presented, not where it was
+                    float eventTime = motionEvent.getEventTime() - gestureStartTime;
+                    rotationPredictor.addSample(eventTime, sampledRotation);
+                    float eventAge = SystemClock.uptimeMillis() - motionEvent.getEventTime();
+                    float horizon = RotationPredictor.presentationHorizon(framePeriodMs, eventAge);
+                    float predictedRotation = rotationPredictor.predict(eventTime + horizon);
+                    applyRotation(finalNode, predictedRotation - appliedRotation);
+                    panning = true;
                   /*  if(dy1 > 0.0 && dy1 > dx1 - dy1) {
                         Quaternion rotationDelta = new Quaternion(Vector3.right(), anglePan);
                         Quaternion localrotation = finalNode.getLocalRotation();
@@ -262,19 +324,9 @@ public class TouchController {
                 if (fingersAreClosing) {
                     touchStatus = TOUCH_STATUS_ZOOMING_CAMERA;
                     Log.i("touched", "Zoom In");
-                  /*  Camera camera = scene.getCamera();
-                    Vector3 cameraPosition = camera.getWorldPosition();
+                    // spreading the fingers moves the camera in, the scheduler eases it there per frame
                     float zoomFactor = (length - previousLength);
-                    Log.i("factor", String.valueOf(zoomFactor));
-
-                        if (zoomFactor > 3 && cameraPosition.z > -0.499) {
-                            cameraPosition.z -= 0.08f;
-                            Log.i("z", String.valueOf(cameraPosition.z));
-                        } else if (zoomFactor < 3 && cameraPosition.z < 1.47) {
-                            cameraPosition.z += 0.08f;
-                            Log.i("z", String.valueOf(cameraPosition.z));
-                        }
-                        camera.setWorldPosition(cameraPosition);*/
+                    animationScheduler.zoomBy(scene.getCamera(), -zoomFactor * ZOOM_PER_PIXEL, CAMERA_MIN_Z, CAMERA_MAX_Z);
                    /* if (isRotating) {
 					touchStatus = TOUCH_STATUS_ROTATING_CAMERA;
 					Log.i(TAG, "Rotating camera '" + Math.signum(rotationVector[2]) + "'...");
@@ -308,6 +360,41 @@ public class TouchController {
     }
 
 
+    private static boolean isOnNode(HitTestResult hitTestResult, Node target) {
+        if (hitTestResult == null) {
+            return false;
+        }
+        for (Node node = hitTestResult.getNode(); node != null; node = node.getParent()) {
+            if (node == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops whatever lead the prediction still holds so the body rests where the finger did.
+     */
+    private void settleRotation(TransformableNode finalNode) {
+        if (finalNode != null && appliedRotation != sampledRotation) {
+            applyRotation(finalNode, sampledRotation - appliedRotation);
+        }
+    }
+
+    private void applyRotation(TransformableNode finalNode, float angle) {
+        if (angle == 0) {
+            return;
+        }
+        Quaternion rotationDelta = new Quaternion(Vector3.up(), angle);
+        Quaternion localrotation = finalNode.getLocalRotation();
+        localrotation = Quaternion.multiply(localrotation, rotationDelta);
+        finalNode.setLocalRotation(localrotation);
+        appliedRotation += angle;
+        if (journal != null) {
+            journal.record(SessionJournal.EVENT_ROTATION_DELTA, angle, dx1, dy1);
+        }
+    }
+
     private void createCircle(HitTestResult hitTestResult, TransformableNode finalNode) {
             Log.e("Hit at : ", hitTestResult.getNode().getName());
             if (!hitTestResult.getNode().getName().equals("Injection")) {
@@ -335,6 +422,12 @@ public class TouchController {
         modelNode.setName("Injection");
         modelNode.setLocalRotation(new Quaternion(0.5f, 0.5f, 0.5f, 0.5f));
         modelNode.setParent(finalNode);
+        animationScheduler.popIn(modelNode);
+        if (journal != null) {
+            // createCircle completes on the main thread, same as onTouchEvent, so the journal keeps one producer
+            Vector3 localPosition = modelNode.getLocalPosition();
+            journal.record(SessionJournal.EVENT_MARKER_ADD, localPosition.x, localPosition.y, localPosition.z);
+        }
 
 
     }
@@ -0,0 +1,128 @@
+package com.test.sceneformapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link AnimationTable} with synthetic frame times.
+ */
+public class AnimationTableTest {
+
+    private static final Object NODE = new Object();
+
+    private static class Recorder implements AnimationTable.Callback<Object> {
+        float spun;
+        float spinTotal = Float.NaN;
+        int spinsFinished;
+        float z = Float.NaN;
+        float scale = Float.NaN;
+
+        @Override
+        public void onSpinStep(Object key, float degrees) {
+            spun += degrees;
+        }
+
+        @Override
+        public void onSpinFinished(Object key, float totalDegrees) {
+            spinTotal = totalDegrees;
+            spinsFinished++;
+        }
+
+        @Override
+        public void onZoomStep(Object key, float z) {
+            this.z = z;
+        }
+
+        @Override
+        public void onPopInStep(Object key, float scale) {
+            this.scale = scale;
+        }
+    }
+
+    private static void runUntilIdle(AnimationTable<Object> table, float fps) {
+        for (int frame = 0; frame < 100000 && table.isAnimating(); frame++) {
+            table.advance(1f / fps);
+        }
+        assertFalse(table.isAnimating());
+    }
+
+    @Test
+    public void spin_endsAtTheSameAngleForAnyFrameRate() {
+        float[] totals = new float[3];
+        float[] rates = {30f, 60f, 120f};
+        for (int i = 0; i < rates.length; i++) {
+            Recorder recorder = new Recorder();
+            AnimationTable<Object> table = new AnimationTable<>(recorder);
+            assertTrue(table.spin(NODE, 300f));
+            runUntilIdle(table, rates[i]);
+            assertEquals(1, recorder.spinsFinished);
+            assertEquals(recorder.spun, recorder.spinTotal, 1e-3f);
+            totals[i] = recorder.spinTotal;
+        }
+        assertTrue(totals[0] > 0f);
+        assertEquals(totals[0], totals[1], 1e-3f);
+        assertEquals(totals[0], totals[2], 1e-3f);
+    }
+
+    @Test
+    public void spin_isClampedAndSlowSpinsDoNotStart() {
+        Recorder recorder = new Recorder();
+        AnimationTable<Object> table = new AnimationTable<>(recorder);
+        assertFalse(table.spin(NODE, AnimationTable.SPIN_STOP_VELOCITY / 2));
+        assertFalse(table.isAnimating());
+
+        table.spin(NODE, 100000f);
+        table.advance(AnimationTable.STEP_SECONDS);
+        assertEquals(AnimationTable.SPIN_MAX_VELOCITY * AnimationTable.STEP_SECONDS, recorder.spun, 1e-3f);
+    }
+
+    @Test
+    public void cancelledSpin_reportsTheAngleTurnedSoFar() {
+        Recorder recorder = new Recorder();
+        AnimationTable<Object> table = new AnimationTable<>(recorder);
+        table.spin(NODE, 200f);
+        table.advance(0.1f);
+        table.cancel(NODE, AnimationTable.TYPE_SPIN);
+        assertFalse(table.isAnimating());
+        assertEquals(1, recorder.spinsFinished);
+        assertEquals(recorder.spun, recorder.spinTotal, 1e-4f);
+    }
+
+    @Test
+    public void zoom_easesToTheClampedTarget() {
+        Recorder recorder = new Recorder();
+        AnimationTable<Object> table = new AnimationTable<>(recorder);
+        table.zoomBy(NODE, 1.5f, 0.2f, -0.5f, 1.5f);
+        table.advance(1f / 60f);
+        // already at the upper bound, zooming out stays there instead of jumping inwards
+        assertEquals(1.5f, recorder.z, 0f);
+        runUntilIdle(table, 60f);
+
+        table.zoomBy(NODE, 1.5f, -1f, -0.5f, 1.5f);
+        table.zoomBy(NODE, 1.5f, -5f, -0.5f, 1.5f);
+        table.advance(1f / 60f);
+        assertTrue(recorder.z < 1.5f && recorder.z > -0.5f);
+        runUntilIdle(table, 60f);
+        assertEquals(-0.5f, recorder.z, 0f);
+    }
+
+    @Test
+    public void popIn_landsOnTheFinalScale() {
+        Recorder recorder = new Recorder();
+        AnimationTable<Object> table = new AnimationTable<>(recorder);
+        table.popIn(NODE, 2f);
+        table.advance(AnimationTable.STEP_SECONDS);
+        assertTrue(recorder.scale > 0f && recorder.scale < 2f);
+        runUntilIdle(table, 60f);
+        assertEquals(2f, recorder.scale, 1e-4f);
+    }
+
+    @Test
+    public void longStall_isSkippedNotReplayed() {
+        AnimationTable<Object> table = new AnimationTable<>(new Recorder());
+        table.spin(NODE, 300f);
+        assertEquals(AnimationTable.MAX_STEPS_PER_FRAME, table.advance(5f));
+        assertEquals(0, table.advance(AnimationTable.STEP_SECONDS / 2));
+    }
+}
@@ -0,0 +1,126 @@
+package com.test.sceneformapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays synthetic touch traces through {@link RotationPredictor}.
+ */
+public class RotationPredictorTest {
+
+    private static final float SAMPLE_INTERVAL_MS = 8f;
+    private static final float HORIZON_MS = 16f;
+
+    @Test
+    public void constantVelocity_isExtrapolatedExactly() {
+        RotationPredictor predictor = new RotationPredictor();
+        for (int i = 0; i < 10; i++) {
+            float t = i * SAMPLE_INTERVAL_MS;
+            predictor.addSample(t, 0.5f * t);
+        }
+        float last = 9 * SAMPLE_INTERVAL_MS;
+        assertEquals(0.5f * (last + HORIZON_MS), predictor.predict(last + HORIZON_MS), 1e-3f);
+    }
+
+    @Test
+    public void smoothTrace_hasLessLatencyErrorThanLastSample() {
+        RotationPredictor predictor = new RotationPredictor();
+        double lagError = 0;
+        double predictionError = 0;
+        for (int i = 0; i < 200; i++) {
+            float t = i * SAMPLE_INTERVAL_MS;
+            float sample = trace(t);
+            predictor.addSample(t, sample);
+            float predicted = predictor.predict(t + HORIZON_MS);
+            if (i > 4) {
+                float presented = trace(t + HORIZON_MS);
+                lagError += Math.abs(presented - sample);
+                predictionError += Math.abs(presented - predicted);
+            }
+        }
+        assertTrue("prediction error " + predictionError + " vs lag " + lagError,
+                predictionError < lagError * 0.25);
+    }
+
+    @Test
+    public void lead_isBoundedAndSettlesAfterStop() {
+        RotationPredictor predictor = new RotationPredictor(64f, 10f);
+        float value = 0;
+        for (int i = 0; i < 10; i++) {
+            value = i * SAMPLE_INTERVAL_MS * 3f;
+            predictor.addSample(i * SAMPLE_INTERVAL_MS, value);
+        }
+        float t = 9 * SAMPLE_INTERVAL_MS;
+        assertEquals(value + 10f, predictor.predict(t + HORIZON_MS), 1e-3f);
+
+        // finger stops, the prediction must never run backwards and must return to the sample
+        for (int i = 10; i < 20; i++) {
+            t = i * SAMPLE_INTERVAL_MS;
+            predictor.addSample(t, value);
+            float lead = predictor.predict(t + HORIZON_MS) - value;
+            assertTrue(lead >= 0f && lead <= 10f);
+        }
+        assertEquals(value, predictor.predict(t + HORIZON_MS), 1e-3f);
+    }
+
+    @Test
+    public void overshoot_shrinksTheNextLead() {
+        // faster than the horizon, as on 90 and 120 Hz touch screens
+        for (float interval : new float[]{8f, 11f}) {
+            RotationPredictor corrected = new RotationPredictor();
+            RotationPredictor uncorrected = new RotationPredictor();
+            float value = 0;
+            for (int i = 0; i < 10; i++) {
+                float t = i * interval;
+                value = 0.5f * t;
+                corrected.addSample(t, value);
+                corrected.predict(t + HORIZON_MS);
+                uncorrected.addSample(t, value);
+            }
+            // sudden stop, the last prediction ran ahead of where the finger actually is
+            float t = 10 * interval;
+            corrected.addSample(t, value);
+            uncorrected.addSample(t, value);
+            float correctedLead = corrected.predict(t + HORIZON_MS) - value;
+            float uncorrectedLead = uncorrected.predict(t + HORIZON_MS) - value;
+            assertTrue("interval " + interval + ": " + correctedLead + " vs " + uncorrectedLead,
+                    correctedLead > 0f && correctedLead < uncorrectedLead);
+        }
+    }
+
+    @Test
+    public void velocity_isZeroOnceTheFingerHasRested() {
+        RotationPredictor predictor = new RotationPredictor();
+        for (int i = 0; i < 10; i++) {
+            float t = i * SAMPLE_INTERVAL_MS;
+            predictor.addSample(t, 0.5f * t);
+        }
+        float last = 9 * SAMPLE_INTERVAL_MS;
+        assertEquals(0.5f, predictor.estimateVelocity(last + SAMPLE_INTERVAL_MS), 1e-4f);
+        assertEquals(0f, predictor.estimateVelocity(last + 200f), 0f);
+    }
+
+    @Test
+    public void horizon_followsRefreshRateAndEventAge() {
+        assertEquals(1000f / 60f, RotationPredictor.presentationHorizon(1000f / 60f, 0f), 1e-4f);
+        assertEquals(1000f / 120f, RotationPredictor.presentationHorizon(1000f / 120f, 0f), 1e-4f);
+        // a late event needs more lead, but only up to a couple of frames
+        assertEquals(4f + 1000f / 120f, RotationPredictor.presentationHorizon(1000f / 120f, 4f), 1e-4f);
+        assertEquals(3 * 1000f / 120f, RotationPredictor.presentationHorizon(1000f / 120f, 500f), 1e-4f);
+        assertEquals(1000f / 120f, RotationPredictor.presentationHorizon(1000f / 120f, -1f), 1e-4f);
+    }
+
+    @Test
+    public void singleSample_isNotExtrapolated() {
+        RotationPredictor predictor = new RotationPredictor();
+        predictor.addSample(0f, 5f);
+        assertEquals(5f, predictor.predict(HORIZON_MS), 0f);
+        predictor.reset();
+        assertEquals(0f, predictor.predict(HORIZON_MS), 0f);
+    }
+
+    private static float trace(float t) {
+        return (float) (90 * Math.sin(t / 300.0));
+    }
+}
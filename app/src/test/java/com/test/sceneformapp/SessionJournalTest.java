@@ -0,0 +1,147 @@
+package com.test.sceneformapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trip and corruption checks for {@link SessionJournal}.
+ */
+public class SessionJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordedEvents_areReadBackInOrder() throws IOException {
+        File file = folder.newFile("session.journal");
+        SessionJournal journal = new SessionJournal(file, 64, 16);
+        journal.start();
+        journal.record(SessionJournal.EVENT_GESTURE_START);
+        journal.record(SessionJournal.EVENT_ROTATION_DELTA, 0.25f, 1f, 0f);
+        journal.record(SessionJournal.EVENT_MARKER_ADD, 0.1f, 0.2f, 0.3f);
+        journal.record(SessionJournal.EVENT_GESTURE_END);
+        journal.close();
+
+        final List<float[]> events = new ArrayList<>();
+        try (SessionJournal.Reader reader = new SessionJournal.Reader(file)) {
+            long count = reader.readAll((timeMillis, type, a, b, c) -> events.add(new float[]{type, a, b, c}));
+            assertEquals(4, count);
+        }
+        assertEquals(SessionJournal.EVENT_GESTURE_START, (int) events.get(0)[0]);
+        assertArrayEquals(new float[]{SessionJournal.EVENT_ROTATION_DELTA, 0.25f, 1f, 0f}, events.get(1), 0f);
+        assertArrayEquals(new float[]{SessionJournal.EVENT_MARKER_ADD, 0.1f, 0.2f, 0.3f}, events.get(2), 0f);
+        assertEquals(SessionJournal.EVENT_GESTURE_END, (int) events.get(3)[0]);
+        assertEquals(4, journal.getWrittenCount());
+    }
+
+    @Test
+    public void fullRing_dropsInsteadOfBlocking() {
+        SessionJournal journal = new SessionJournal(new File(folder.getRoot(), "unused"), 8, 8);
+        for (int i = 0; i < 10; i++) {
+            journal.record(SessionJournal.EVENT_ROTATION_DELTA, i, 0f, 0f);
+        }
+        assertEquals(2, journal.getDroppedCount());
+    }
+
+    @Test
+    public void truncatedTail_isDroppedOnNextStart() throws IOException {
+        File file = folder.newFile("killed.journal");
+        SessionJournal first = new SessionJournal(file, 64, 64);
+        first.record(SessionJournal.EVENT_GESTURE_START);
+        first.start();
+        first.close();
+        SessionJournal second = new SessionJournal(file, 64, 64);
+        second.record(SessionJournal.EVENT_GESTURE_END);
+        second.start();
+        second.close();
+        // the process died in the middle of writing the second block
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        SessionJournal third = new SessionJournal(file, 64, 64);
+        third.record(SessionJournal.EVENT_MARKER_ADD, 1f, 2f, 3f);
+        third.start();
+        third.close();
+
+        final List<Integer> types = new ArrayList<>();
+        try (SessionJournal.Reader reader = new SessionJournal.Reader(file)) {
+            reader.readAll((timeMillis, type, a, b, c) -> types.add(type));
+        }
+        assertEquals(2, types.size());
+        assertEquals(SessionJournal.EVENT_GESTURE_START, (int) types.get(0));
+        assertEquals(SessionJournal.EVENT_MARKER_ADD, (int) types.get(1));
+    }
+
+    @Test
+    public void flush_writesRecordedEventsBeforeClose() throws IOException {
+        File file = folder.newFile("paused.journal");
+        SessionJournal journal = new SessionJournal(file, 64, 64);
+        journal.start();
+        journal.record(SessionJournal.EVENT_GESTURE_START);
+        journal.record(SessionJournal.EVENT_GESTURE_END);
+        journal.flush();
+        assertEquals(2, journal.getWrittenCount());
+        try (SessionJournal.Reader reader = new SessionJournal.Reader(file)) {
+            assertEquals(2, reader.readAll((timeMillis, type, a, b, c) -> {
+            }));
+        }
+        journal.close();
+    }
+
+    @Test
+    public void recordAfterClose_isDropped() throws IOException {
+        SessionJournal journal = new SessionJournal(folder.newFile("closed.journal"), 8, 8);
+        journal.close();
+        assertFalse(journal.record(SessionJournal.EVENT_GESTURE_START));
+        assertEquals(1, journal.getDroppedCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void oversizedBlockHeader_isRejected() throws IOException {
+        File file = folder.newFile("oversized.journal");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(SessionJournal.BLOCK_MAGIC);
+            raf.writeInt(Integer.MAX_VALUE / SessionJournal.RECORD_SIZE * SessionJournal.RECORD_SIZE);
+            raf.writeInt(Integer.MAX_VALUE);
+            raf.writeInt(0);
+        }
+        try (SessionJournal.Reader reader = new SessionJournal.Reader(file)) {
+            reader.readAll((timeMillis, type, a, b, c) -> {
+            });
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptBlock_failsChecksum() throws IOException {
+        File file = folder.newFile("corrupt.journal");
+        SessionJournal journal = new SessionJournal(file, 64, 64);
+        // record before starting so everything lands in a single block
+        for (int i = 0; i < 32; i++) {
+            journal.record(SessionJournal.EVENT_ROTATION_DELTA, i, 1f, 0f);
+        }
+        journal.start();
+        journal.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long middle = 16 + (raf.length() - 16) / 2;
+            raf.seek(middle);
+            int b = raf.read();
+            raf.seek(middle);
+            raf.write(b ^ 0xFF);
+        }
+        try (SessionJournal.Reader reader = new SessionJournal.Reader(file)) {
+            reader.readAll((timeMillis, type, a, b, c) -> {
+            });
+        }
+    }
+}